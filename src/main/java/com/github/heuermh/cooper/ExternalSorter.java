@@ -0,0 +1,370 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import java.util.function.Consumer;
+
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * External merge sorter, which spills sorted runs of listings as compact
+ * binary records to a temporary directory once its memory budget is exceeded.
+ *
+ * @author  Michael Heuer
+ */
+final class ExternalSorter implements Sorter {
+
+    /** Comparator. */
+    private final Comparator<Listing> comparator;
+
+    /** Memory budget in bytes. */
+    private final long bufferSize;
+
+    /** Minimum number of listings per sorted run. */
+    private final int minRunSize;
+
+    /** Parent directory for the temporary directory, or null to use the system default. */
+    private final Path tempDirectory;
+
+    /** In memory buffer of listings. */
+    private final List<Listing> buffer = new ArrayList<Listing>();
+
+    /** Estimated heap usage of the in memory buffer in bytes. */
+    private long bufferedSize = 0L;
+
+    /** Sorted runs spilled to disk. */
+    private final List<Run> runs = new ArrayList<Run>();
+
+    /** Temporary directory for sorted runs, created lazily. */
+    private Path runDirectory;
+
+    /** Shutdown hook that deletes the temporary directory on exit, if any. */
+    private Thread shutdownHook;
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(ExternalSorter.class);
+
+    /** Default minimum number of listings per sorted run. */
+    static final int MIN_RUN_SIZE = 8192;
+
+    /** Maximum number of sorted runs to merge at once. */
+    static final int MERGE_FACTOR = 64;
+
+    /** Buffer size for reading and writing sorted runs. */
+    static final int IO_BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     * Create a new external sorter.
+     *
+     * @param comparator comparator, must not be null
+     * @param bufferSize memory budget in bytes, must be greater than zero
+     * @param tempDirectory parent directory for the temporary directory, or null to use the system default
+     */
+    ExternalSorter(final Comparator<Listing> comparator, final long bufferSize, final Path tempDirectory) {
+        this(comparator, bufferSize, MIN_RUN_SIZE, tempDirectory);
+    }
+
+    /**
+     * Create a new external sorter.
+     *
+     * @param comparator comparator, must not be null
+     * @param bufferSize memory budget in bytes, must be greater than zero
+     * @param minRunSize minimum number of listings per sorted run, spilling only once the buffer
+     *    holds at least this many listings, even if over the memory budget, must be greater than zero
+     * @param tempDirectory parent directory for the temporary directory, or null to use the system default
+     */
+    ExternalSorter(final Comparator<Listing> comparator, final long bufferSize, final int minRunSize, final Path tempDirectory) {
+        if (comparator == null) {
+            throw new NullPointerException("comparator must not be null");
+        }
+        if (bufferSize < 1L) {
+            throw new IllegalArgumentException("bufferSize must be greater than zero");
+        }
+        if (minRunSize < 1) {
+            throw new IllegalArgumentException("minRunSize must be greater than zero");
+        }
+        this.comparator = comparator;
+        this.bufferSize = bufferSize;
+        this.minRunSize = minRunSize;
+        this.tempDirectory = tempDirectory;
+    }
+
+
+    @Override
+    public void add(final Listing listing) throws IOException {
+        buffer.add(listing);
+        bufferedSize += listing.estimatedSize() + 8L;
+
+        if (bufferedSize >= bufferSize && buffer.size() >= minRunSize) {
+            spill();
+        }
+    }
+
+    @Override
+    public void forEach(final Consumer<Listing> consumer) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            buffer.forEach(consumer);
+            return;
+        }
+        spill();
+
+        // merge in passes until at most MERGE_FACTOR sorted runs remain
+        while (runs.size() > MERGE_FACTOR) {
+            List<Run> toMerge = new ArrayList<Run>(runs.subList(0, MERGE_FACTOR));
+
+            Run run = createRun();
+            try (DataOutputStream out = output(run.path)) {
+                merge(toMerge, listing -> {
+                        listing.write(out);
+                        run.count++;
+                    });
+            }
+            for (Run merged : toMerge) {
+                Files.deleteIfExists(merged.path);
+            }
+            runs.subList(0, MERGE_FACTOR).clear();
+        }
+        merge(runs, listing -> consumer.accept(listing));
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        bufferedSize = 0L;
+
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            }
+            catch (IllegalStateException e) {
+                // shutdown in progress, shutdown hook will delete the temporary directory
+            }
+            shutdownHook = null;
+        }
+        deleteRunDirectory();
+    }
+
+    /**
+     * Return the shutdown hook that deletes the temporary directory on exit, if any.
+     *
+     * @return the shutdown hook that deletes the temporary directory on exit, or null
+     *    if the temporary directory has not been created
+     */
+    Thread getShutdownHook() {
+        return shutdownHook;
+    }
+
+    /**
+     * Delete all sorted runs and any other files in the temporary directory, and
+     * the temporary directory itself.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void deleteRunDirectory() throws IOException {
+        for (Run run : runs) {
+            Files.deleteIfExists(run.path);
+        }
+        runs.clear();
+
+        if (runDirectory != null) {
+            deleteDirectory(runDirectory);
+            runDirectory = null;
+        }
+    }
+
+    /**
+     * Delete all files in the specified directory, and the directory itself.
+     *
+     * @param directory directory to delete
+     * @throws IOException if an I/O error occurs
+     */
+    private static void deleteDirectory(final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+        catch (NoSuchFileException e) {
+            // already deleted
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Sort the in memory buffer and write it to disk as a new sorted run.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        buffer.sort(comparator);
+
+        Run run = createRun();
+        try (DataOutputStream out = output(run.path)) {
+            for (Listing listing : buffer) {
+                listing.write(out);
+            }
+        }
+        run.count = buffer.size();
+
+        logger.info("spilled sorted run of {} listings to {}", run.count, run.path);
+
+        buffer.clear();
+        bufferedSize = 0L;
+    }
+
+    /**
+     * Create a new, empty sorted run in the temporary directory and track it
+     * until it is deleted.
+     *
+     * @return a new, empty sorted run in the temporary directory
+     * @throws IOException if an I/O error occurs
+     */
+    private Run createRun() throws IOException {
+        if (runDirectory == null) {
+            runDirectory = tempDirectory == null ? Files.createTempDirectory("coop-sort") : Files.createTempDirectory(tempDirectory, "coop-sort");
+
+            // delete the temporary directory on exit, e.g. on SIGPIPE or SIGINT before close
+            Path directory = runDirectory;
+            shutdownHook = new Thread(() -> {
+                    try {
+                        deleteDirectory(directory);
+                    }
+                    catch (IOException e) {
+                        logger.warn("could not delete temporary directory {}", directory, e);
+                    }
+                }, "coop-sort-cleanup");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        Run run = new Run(Files.createTempFile(runDirectory, "run", ".bin"));
+        runs.add(run);
+        return run;
+    }
+
+    /**
+     * Merge the specified sorted runs, passing each listing in sorted order to the specified sink.
+     *
+     * @param toMerge sorted runs to merge
+     * @param sink sink
+     * @throws IOException if an I/O error occurs
+     */
+    private void merge(final List<Run> toMerge, final Sink sink) throws IOException {
+        List<RunReader> readers = new ArrayList<RunReader>(toMerge.size());
+        PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(toMerge.size(), (a, b) -> comparator.compare(a.head, b.head));
+        try {
+            for (Run run : toMerge) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                sink.accept(reader.head);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        }
+        finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static DataOutputStream output(final Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE));
+    }
+
+    /**
+     * Sink for listings that may throw I/O exceptions.
+     */
+    private interface Sink {
+        void accept(Listing listing) throws IOException;
+    }
+
+    /**
+     * Sorted run spilled to disk.
+     */
+    private static final class Run {
+        /** Path. */
+        final Path path;
+
+        /** Number of listings. */
+        long count;
+
+        Run(final Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Sorted run reader.
+     */
+    private static final class RunReader {
+        /** Input. */
+        final DataInputStream in;
+
+        /** Number of listings remaining. */
+        long remaining;
+
+        /** Current listing. */
+        Listing head;
+
+        RunReader(final Run run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.path), IO_BUFFER_SIZE));
+            remaining = run.count;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0L) {
+                head = null;
+                return false;
+            }
+            head = Listing.read(in);
+            remaining--;
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
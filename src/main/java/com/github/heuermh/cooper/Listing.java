@@ -0,0 +1,190 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Listing, a compact record of an s3 object for sorting.
+ *
+ * @author  Michael Heuer
+ */
+//@Immutable
+final class Listing {
+
+    /** s3 path. */
+    private final String s3Path;
+
+    /** Content size in bytes. */
+    private final long size;
+
+    /** Last modified date, in milliseconds since the epoch. */
+    private final long lastModified;
+
+    /** Checksum type, if any. */
+    private final String checksumType;
+
+    /** Checksum algorithms, if any. */
+    private final String checksumAlgorithms;
+
+    /** Entity tag, if any. */
+    private final String eTag;
+
+    /** Estimated heap usage per listing, not including strings. */
+    static final long OVERHEAD = 96L;
+
+
+    /**
+     * Create a new listing.
+     *
+     * @param s3Path s3 path, must not be null
+     * @param size content size in bytes
+     * @param lastModified last modified date, in milliseconds since the epoch
+     * @param checksumType checksum type, if any
+     * @param checksumAlgorithms checksum algorithms, if any
+     * @param eTag entity tag, if any
+     */
+    Listing(final String s3Path,
+            final long size,
+            final long lastModified,
+            final String checksumType,
+            final String checksumAlgorithms,
+            final String eTag) {
+
+        if (s3Path == null) {
+            throw new NullPointerException("s3Path must not be null");
+        }
+        this.s3Path = s3Path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.checksumType = checksumType;
+        this.checksumAlgorithms = checksumAlgorithms;
+        this.eTag = eTag;
+    }
+
+
+    /**
+     * Return the s3 path for this listing.
+     *
+     * @return the s3 path for this listing
+     */
+    String getS3Path() {
+        return s3Path;
+    }
+
+    /**
+     * Return the content size in bytes for this listing.
+     *
+     * @return the content size in bytes for this listing
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Return the last modified date for this listing, in milliseconds since the epoch.
+     *
+     * @return the last modified date for this listing, in milliseconds since the epoch
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Return the checksum type for this listing, if any.
+     *
+     * @return the checksum type for this listing, if any
+     */
+    String getChecksumType() {
+        return checksumType;
+    }
+
+    /**
+     * Return the checksum algorithms for this listing, if any.
+     *
+     * @return the checksum algorithms for this listing, if any
+     */
+    String getChecksumAlgorithms() {
+        return checksumAlgorithms;
+    }
+
+    /**
+     * Return the entity tag for this listing, if any.
+     *
+     * @return the entity tag for this listing, if any
+     */
+    String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Return the estimated heap usage of this listing in bytes.
+     *
+     * @return the estimated heap usage of this listing in bytes
+     */
+    long estimatedSize() {
+        return OVERHEAD + 2L * (length(s3Path) + length(checksumType) + length(checksumAlgorithms) + length(eTag));
+    }
+
+    /**
+     * Write this listing to the specified output as a binary record.
+     *
+     * @param out output to write to, must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    void write(final DataOutput out) throws IOException {
+        out.writeUTF(s3Path);
+        out.writeLong(size);
+        out.writeLong(lastModified);
+        writeNullable(checksumType, out);
+        writeNullable(checksumAlgorithms, out);
+        writeNullable(eTag, out);
+    }
+
+    /**
+     * Read a listing from the specified input as a binary record.
+     *
+     * @param in input to read from, must not be null
+     * @return a listing read from the specified input as a binary record
+     * @throws IOException if an I/O error occurs
+     */
+    static Listing read(final DataInput in) throws IOException {
+        String s3Path = in.readUTF();
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        String checksumType = readNullable(in);
+        String checksumAlgorithms = readNullable(in);
+        String eTag = readNullable(in);
+        return new Listing(s3Path, size, lastModified, checksumType, checksumAlgorithms, eTag);
+    }
+
+    private static int length(final String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void writeNullable(final String value, final DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
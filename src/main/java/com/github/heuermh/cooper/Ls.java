@@ -19,8 +19,11 @@ import static org.dishevelled.compress.Writers.writer;
 
 import java.io.PrintWriter;
 
+import java.net.URI;
+
 import java.nio.file.Path;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -38,7 +41,12 @@ import org.slf4j.LoggerFactory;
 
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParseResult;
+import picocli.CommandLine.Spec;
+
+import picocli.CommandLine.Model.CommandSpec;
 
 import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
 
@@ -72,6 +80,12 @@ public final class Ls implements Callable<Integer> {
     @Option(names = { "--anonymous" })
     private boolean anonymous;
 
+    @Option(names = { "--endpoint-url" })
+    private URI endpointUrl;
+
+    @Option(names = { "--force-path-style" })
+    private boolean forcePathStyle;
+
     @Option(names = { "--bytes" })
     private boolean bytes;
 
@@ -90,6 +104,26 @@ public final class Ls implements Callable<Integer> {
     @Option(names = { "--summarize" })
     private boolean summarize;
 
+    @Option(
+        names = { "--sort" },
+        type = SortKey.class,
+        converter = SortKeyConverter.class,
+        completionCandidates = SortKeyCandidates.class
+    )
+    private SortKey sort;
+
+    @Option(names = { "--reverse" })
+    private boolean reverse;
+
+    @Option(names = { "--top" })
+    private int top;
+
+    @Option(names = { "--sort-buffer-size" }, defaultValue = "67108864")
+    private long sortBufferSize;
+
+    @Option(names = { "--temp-directory" })
+    private Path tempDirectory;
+
     @Option(names = { "--output-path", "-o" })
     private Path outputPath;
 
@@ -109,23 +143,58 @@ public final class Ls implements Callable<Integer> {
     static final Pattern S3_URI = Pattern.compile("^s3:\\/\\/([a-zA-Z0-9.-]+)\\/*(.*)$");
 
 
+    @Spec
+    private CommandSpec spec;
+
     @Override
     public Integer call() throws Exception {
 
+        // validate --sort-buffer-size and --top
+        ParseResult parseResult = spec.commandLine().getParseResult();
+        if (sortBufferSize < 1L) {
+            throw new ParameterException(spec.commandLine(), "--sort-buffer-size must be greater than zero, was " + sortBufferSize);
+        }
+        if (parseResult.hasMatchedOption("--top") && top < 1) {
+            throw new ParameterException(spec.commandLine(), "--top must be greater than zero, was " + top);
+        }
+        if (top > 0 && sort == null) {
+            throw new ParameterException(spec.commandLine(), "--top requires --sort, e.g. --sort size --reverse --top " + top + " for the largest objects");
+        }
+
+        // warn if --summarize and --checksums
+        if (summarize && checksums) {
+            logger.warn("--summarize does not show checksums, even if --checksums provided");
+        }
+
+        // warn if --summarize and --sort or --top
+        if (summarize && (sort != null || top > 0)) {
+            logger.warn("--summarize does not sort, even if --sort or --top provided");
+        }
+
+        // warn if --top and --sort-buffer-size or --temp-directory
+        if (top > 0 && (parseResult.hasMatchedOption("--sort-buffer-size") || parseResult.hasMatchedOption("--temp-directory"))) {
+            logger.warn("--top sorts in memory, ignoring --sort-buffer-size and --temp-directory");
+        }
+
+        // warn if --reverse without --sort
+        if (reverse && sort == null) {
+            logger.warn("--reverse has no effect without --sort");
+        }
+
         S3ClientBuilder builder = S3Client.builder()
             .region(region);
 
         if (anonymous) {
             builder = builder.credentialsProvider(AnonymousCredentialsProvider.create());
         }
-        S3Client s3 = builder.build();
-
-        // warn if --summarize and --checksums
-        if (summarize && checksums) {
-            logger.warn("--summarize does not show checksums, even if --checksums provided");
+        if (endpointUrl != null) {
+            builder = builder.endpointOverride(endpointUrl);
+        }
+        if (forcePathStyle) {
+            builder = builder.forcePathStyle(true);
         }
 
-        try (PrintWriter writer = writer(outputPath)) {
+        try (S3Client s3 = builder.build(); PrintWriter writer = writer(outputPath); Sorter sorter = createSorter()) {
 
             // show header, if --show-header
             if (showHeader) {
@@ -185,56 +254,26 @@ public final class Ls implements Callable<Integer> {
                             String s3Path = "s3://" + bucket + "/" + content.key();
 
                             if (s3Path.startsWith(uri)) {
-                                String byteSize = String.valueOf(content.size());
-                                String humanReadableSize = FORMATTER.format(content.size());
-
                                 if (summarize) {
                                     counts.put(uri, counts.containsKey(uri) ? counts.get(uri) + 1 : 1);
                                     sizes.put(uri, sizes.containsKey(uri) ? sizes.get(uri) + content.size() : content.size());
                                 }
-                                else if (checksums) {
-                                    String checksumType = content.checksumTypeAsString();
-                                    String checksumAlgorithms = Joiner.on(",").join(content.checksumAlgorithmAsStrings());
-
-                                    // why is this value quoted?
-                                    String eTag = content.eTag().replace("\"", "");
-
-                                    // format per --bytes, --human-readable, --reverse-columns
-                                    if (bytes && humanReadable) {
-                                        if (reverseColumns) {
-                                            writer.println(joiner.join(byteSize, humanReadableSize, checksumType, checksumAlgorithms, eTag, s3Path));
-                                        }
-                                        else {
-                                            writer.println(joiner.join(s3Path, checksumType, checksumAlgorithms, eTag, byteSize, humanReadableSize));
-                                        }
-                                    }
-                                    else if (humanReadable) {
-                                        if (reverseColumns) {
-                                            writer.println(joiner.join(humanReadableSize, checksumType, checksumAlgorithms, eTag, s3Path));
-                                        }
-                                        else {
-                                            writer.println(joiner.join(s3Path, checksumType, checksumAlgorithms, eTag, humanReadableSize));
-                                        }
-                                    }
-                                    else {
-                                        if (reverseColumns) {
-                                            writer.println(joiner.join(byteSize, checksumType, checksumAlgorithms, eTag, s3Path));
-                                        }
-                                        else {
-                                            writer.println(joiner.join(s3Path, checksumType, checksumAlgorithms, eTag, byteSize));
-                                        }
-                                    }
-                                }
                                 else {
-                                    // format per --bytes, --human-readable, --reverse-columns
-                                    if (bytes && humanReadable) {
-                                        writer.println(reverseColumns ? joiner.join(byteSize, humanReadableSize, s3Path) : joiner.join(s3Path, byteSize, humanReadableSize));
-                                    }
-                                    else if (humanReadable) {
-                                        writer.println(reverseColumns ? joiner.join(humanReadableSize, s3Path) : joiner.join(s3Path, humanReadableSize));
+                                    Listing listing = checksums ?
+                                        new Listing(s3Path,
+                                                    content.size(),
+                                                    lastModified(content),
+                                                    content.checksumTypeAsString(),
+                                                    Joiner.on(",").join(content.checksumAlgorithmAsStrings()),
+                                                    // why is this value quoted?
+                                                    content.eTag().replace("\"", ""))
+                                        : new Listing(s3Path, content.size(), lastModified(content), null, null, null);
+
+                                    if (sorter != null) {
+                                        sorter.add(listing);
                                     }
                                     else {
-                                        writer.println(reverseColumns ? joiner.join(byteSize, s3Path) : joiner.join(s3Path, byteSize));
+                                        print(listing, joiner, writer);
                                     }
                                 }
                             }
@@ -245,6 +284,9 @@ public final class Ls implements Callable<Integer> {
                     logger.warn("uri {} not a valid s3 URI", uri);
                 }
             }
+            if (sorter != null) {
+                sorter.forEach(listing -> print(listing, joiner, writer));
+            }
             if (summarize) {
                 for (String uri : counts.keySet()) {
                     Integer count = counts.get(uri);
@@ -268,6 +310,98 @@ public final class Ls implements Callable<Integer> {
         return 0;
     }
 
+    /**
+     * Create and return a new sorter per --sort, --reverse, and --top, if any.
+     *
+     * @return a new sorter per --sort, --reverse, and --top, or null if output is not sorted
+     */
+    private Sorter createSorter() {
+        if (summarize || sort == null) {
+            return null;
+        }
+        if (top > 0) {
+            return new TopSorter(sort.comparator(reverse), top);
+        }
+        return new ExternalSorter(sort.comparator(reverse), sortBufferSize, tempDirectory);
+    }
+
+    /**
+     * Print the specified listing.
+     *
+     * @param listing listing to print
+     * @param joiner joiner
+     * @param writer writer
+     */
+    private void print(final Listing listing, final Joiner joiner, final PrintWriter writer) {
+        String s3Path = listing.getS3Path();
+        String byteSize = String.valueOf(listing.getSize());
+        String humanReadableSize = FORMATTER.format(listing.getSize());
+
+        if (checksums) {
+            String checksumType = listing.getChecksumType();
+            String checksumAlgorithms = listing.getChecksumAlgorithms();
+            String eTag = listing.getETag();
+
+            // format per --bytes, --human-readable, --reverse-columns
+            if (bytes && humanReadable) {
+                if (reverseColumns) {
+                    writer.println(joiner.join(byteSize, humanReadableSize, checksumType, checksumAlgorithms, eTag, s3Path));
+                }
+                else {
+                    writer.println(joiner.join(s3Path, checksumType, checksumAlgorithms, eTag, byteSize, humanReadableSize));
+                }
+            }
+            else if (humanReadable) {
+                if (reverseColumns) {
+                    writer.println(joiner.join(humanReadableSize, checksumType, checksumAlgorithms, eTag, s3Path));
+                }
+                else {
+                    writer.println(joiner.join(s3Path, checksumType, checksumAlgorithms, eTag, humanReadableSize));
+                }
+            }
+            else {
+                if (reverseColumns) {
+                    writer.println(joiner.join(byteSize, checksumType, checksumAlgorithms, eTag, s3Path));
+                }
+                else {
+                    writer.println(joiner.join(s3Path, checksumType, checksumAlgorithms, eTag, byteSize));
+                }
+            }
+        }
+        else {
+            // format per --bytes, --human-readable, --reverse-columns
+            if (bytes && humanReadable) {
+                writer.println(reverseColumns ? joiner.join(byteSize, humanReadableSize, s3Path) : joiner.join(s3Path, byteSize, humanReadableSize));
+            }
+            else if (humanReadable) {
+                writer.println(reverseColumns ? joiner.join(humanReadableSize, s3Path) : joiner.join(s3Path, humanReadableSize));
+            }
+            else {
+                writer.println(reverseColumns ? joiner.join(byteSize, s3Path) : joiner.join(s3Path, byteSize));
+            }
+        }
+    }
+
+    /**
+     * Return the last modified date of the specified s3 object, in milliseconds since the epoch.
+     *
+     * @param content s3 object
+     * @return the last modified date of the specified s3 object, in milliseconds since the epoch,
+     *    or <code>0L</code> if not available
+     */
+    static long lastModified(final S3Object content) {
+        return content.lastModified() == null ? 0L : content.lastModified().toEpochMilli();
+    }
+
+    /**
+     * Sort key completion candidates.
+     */
+    static final class SortKeyCandidates extends ArrayList<String> {
+        SortKeyCandidates() {
+            super(Arrays.asList("size", "lastModified", "key"));
+        }
+    }
+
 
     /**
      * Main.
@@ -0,0 +1,86 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import java.util.Comparator;
+
+/**
+ * Sort key for listings.
+ *
+ * @author  Michael Heuer
+ */
+enum SortKey {
+
+    /** Sort by content size, then by s3 path. */
+    SIZE("size", Comparator.comparingLong(Listing::getSize).thenComparing(Listing::getS3Path)),
+
+    /** Sort by last modified date, then by s3 path. */
+    LAST_MODIFIED("lastModified", Comparator.comparingLong(Listing::getLastModified).thenComparing(Listing::getS3Path)),
+
+    /** Sort by s3 path. */
+    KEY("key", Comparator.comparing(Listing::getS3Path));
+
+
+    /** Name of this sort key on the command line. */
+    private final String name;
+
+    /** Comparator for this sort key. */
+    private final Comparator<Listing> comparator;
+
+
+    /**
+     * Create a new sort key.
+     *
+     * @param name name of this sort key on the command line
+     * @param comparator comparator for this sort key
+     */
+    SortKey(final String name, final Comparator<Listing> comparator) {
+        this.name = name;
+        this.comparator = comparator;
+    }
+
+
+    /**
+     * Return the comparator for this sort key.
+     *
+     * @param reverse true to reverse the sort order
+     * @return the comparator for this sort key
+     */
+    Comparator<Listing> comparator(final boolean reverse) {
+        return reverse ? comparator.reversed() : comparator;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Return the sort key with the specified name on the command line.
+     *
+     * @param name name of the sort key on the command line
+     * @return the sort key with the specified name on the command line
+     * @throws IllegalArgumentException if no sort key exists with the specified name
+     */
+    static SortKey of(final String name) {
+        for (SortKey sortKey : values()) {
+            if (sortKey.name.equals(name)) {
+                return sortKey;
+            }
+        }
+        throw new IllegalArgumentException("sort key must be one of size, lastModified, or key, was " + name);
+    }
+}
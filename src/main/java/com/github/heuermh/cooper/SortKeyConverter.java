@@ -0,0 +1,32 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import picocli.CommandLine.ITypeConverter;
+
+/**
+ * Sort key converter.
+ *
+ * @author  Michael Heuer
+ */
+//@Immutable
+final class SortKeyConverter implements ITypeConverter<SortKey> {
+
+    @Override
+    public SortKey convert(final String value) throws Exception {
+        return SortKey.of(value);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.util.function.Consumer;
+
+/**
+ * Sorter for listings.
+ *
+ * @author  Michael Heuer
+ */
+interface Sorter extends Closeable {
+
+    /**
+     * Add the specified listing to this sorter.
+     *
+     * @param listing listing to add, must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    void add(Listing listing) throws IOException;
+
+    /**
+     * Pass each listing added to this sorter, in sorted order, to the specified consumer.
+     *
+     * @param consumer consumer, must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    void forEach(Consumer<Listing> consumer) throws IOException;
+}
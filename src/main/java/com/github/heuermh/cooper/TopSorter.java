@@ -0,0 +1,83 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import java.util.function.Consumer;
+
+/**
+ * Sorter that keeps only the first <code>n</code> listings in sorted order, in a bounded heap.
+ *
+ * @author  Michael Heuer
+ */
+final class TopSorter implements Sorter {
+
+    /** Maximum number of listings to keep. */
+    private final int n;
+
+    /** Comparator. */
+    private final Comparator<Listing> comparator;
+
+    /** Bounded heap, with the last listing in sorted order at its head. */
+    private final PriorityQueue<Listing> heap;
+
+
+    /**
+     * Create a new top sorter.
+     *
+     * @param comparator comparator, must not be null
+     * @param n maximum number of listings to keep, must be greater than zero
+     */
+    TopSorter(final Comparator<Listing> comparator, final int n) {
+        if (comparator == null) {
+            throw new NullPointerException("comparator must not be null");
+        }
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be greater than zero");
+        }
+        this.n = n;
+        this.comparator = comparator;
+        heap = new PriorityQueue<Listing>(Math.min(n, 1024) + 1, comparator.reversed());
+    }
+
+
+    @Override
+    public void add(final Listing listing) {
+        if (heap.size() < n) {
+            heap.add(listing);
+        }
+        else if (comparator.compare(listing, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(listing);
+        }
+    }
+
+    @Override
+    public void forEach(final Consumer<Listing> consumer) {
+        List<Listing> listings = new ArrayList<Listing>(heap);
+        listings.sort(comparator);
+        listings.forEach(consumer);
+    }
+
+    @Override
+    public void close() {
+        heap.clear();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for ExternalSorter.
+ *
+ * @author  Michael Heuer
+ */
+public final class ExternalSorterTest {
+    private Path tempDirectory;
+    private Comparator<Listing> comparator;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        tempDirectory = temporaryFolder.newFolder().toPath();
+        comparator = SortKey.SIZE.comparator(true);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullComparator() {
+        new ExternalSorter(null, 1024L, tempDirectory);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorBufferSizeLessThanOne() {
+        new ExternalSorter(comparator, 0L, tempDirectory);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorMinRunSizeLessThanOne() {
+        new ExternalSorter(comparator, 1024L, 0, tempDirectory);
+    }
+
+    @Test
+    public void testMinRunSize() throws Exception {
+        // over the memory budget, but fewer listings than the minimum run size
+        try (ExternalSorter sorter = new ExternalSorter(comparator, 1L, tempDirectory)) {
+            for (int i = 0; i < 1000; i++) {
+                sorter.add(new Listing("s3://bucket/key" + i, i, 0L, null, null, null));
+            }
+            assertFalse(hasFiles(tempDirectory));
+            assertNull(sorter.getShutdownHook());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        List<Listing> sorted = new ArrayList<Listing>();
+        try (ExternalSorter sorter = new ExternalSorter(comparator, 1024L, tempDirectory)) {
+            sorter.forEach(sorted::add);
+        }
+        assertEquals(0, sorted.size());
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        assertSorted(1024L * 1024L, 1000);
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        assertSorted(1024L, 1000);
+    }
+
+    @Test
+    public void testMultiPassMerge() throws Exception {
+        // spill a run for every listing, forcing more than MERGE_FACTOR runs
+        assertSorted(1L, ExternalSorter.MERGE_FACTOR * 3 + 7);
+    }
+
+    @Test
+    public void testCloseAfterEarlyExit() throws Exception {
+        try (ExternalSorter sorter = spillAndExitEarly()) {
+            assertTrue(hasFiles(tempDirectory));
+        }
+        assertFalse(hasFiles(tempDirectory));
+    }
+
+    @Test
+    public void testShutdownHookAfterEarlyExit() throws Exception {
+        ExternalSorter sorter = spillAndExitEarly();
+        assertTrue(hasFiles(tempDirectory));
+
+        // as on System.exit, e.g. on SIGPIPE, without close
+        Thread shutdownHook = sorter.getShutdownHook();
+        assertNotNull(shutdownHook);
+        shutdownHook.run();
+        assertFalse(hasFiles(tempDirectory));
+
+        sorter.close();
+        assertNull(sorter.getShutdownHook());
+    }
+
+    private ExternalSorter spillAndExitEarly() throws Exception {
+        ExternalSorter sorter = new ExternalSorter(comparator, 1L, 1, tempDirectory);
+        for (int i = 0; i < ExternalSorter.MERGE_FACTOR * 3; i++) {
+            sorter.add(new Listing("s3://bucket/key" + i, i, 0L, null, null, null));
+        }
+        try {
+            sorter.forEach(listing -> {
+                    throw new IllegalStateException("broken pipe");
+                });
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+        return sorter;
+    }
+
+    private static boolean hasFiles(final Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findAny().isPresent();
+        }
+    }
+
+    private void assertSorted(final long bufferSize, final int count) throws Exception {
+        Random random = new Random(42L);
+        List<Listing> expected = new ArrayList<Listing>(count);
+        List<Listing> sorted = new ArrayList<Listing>(count);
+        try (ExternalSorter sorter = new ExternalSorter(comparator, bufferSize, 1, tempDirectory)) {
+            for (int i = 0; i < count; i++) {
+                Listing listing = new Listing("s3://bucket/key" + i, random.nextInt(10000), random.nextLong(), null, i % 2 == 0 ? "CRC32" : null, "etag" + i);
+                expected.add(listing);
+                sorter.add(listing);
+            }
+            sorter.forEach(sorted::add);
+        }
+        expected.sort(comparator);
+
+        assertEquals(expected.size(), sorted.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getS3Path(), sorted.get(i).getS3Path());
+            assertEquals(expected.get(i).getSize(), sorted.get(i).getSize());
+            assertEquals(expected.get(i).getLastModified(), sorted.get(i).getLastModified());
+            assertEquals(expected.get(i).getChecksumType(), sorted.get(i).getChecksumType());
+            assertEquals(expected.get(i).getChecksumAlgorithms(), sorted.get(i).getChecksumAlgorithms());
+            assertEquals(expected.get(i).getETag(), sorted.get(i).getETag());
+        }
+
+        // temporary files are removed on close
+        assertFalse(hasFiles(tempDirectory));
+    }
+}
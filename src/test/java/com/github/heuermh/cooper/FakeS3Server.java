@@ -0,0 +1,518 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+import java.nio.charset.StandardCharsets;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for an s3 endpoint, serving ListObjectsV2 and ranged GET
+ * requests over synthetic buckets, with path-style access only.
+ *
+ * <p>
+ * Keys, sizes, and content of the objects in synthetic buckets are computed
+ * from their index, so buckets with millions of keys take no memory.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class FakeS3Server implements Closeable {
+
+    /** Maximum number of keys per ListObjectsV2 response. */
+    private final int pageSize;
+
+    /** Latency added to each request, in milliseconds. */
+    private final long latency;
+
+    /** Respond with 503 SlowDown to every <code>throttleEvery</code>-th request, or zero to never throttle. */
+    private final int throttleEvery;
+
+    /** Number of objects per synthetic bucket, keyed by bucket name. */
+    private final Map<String, Long> buckets = new ConcurrentHashMap<String, Long>();
+
+    /** Request count. */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /** Throttled request count. */
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    /** HTTP server. */
+    private final HttpServer server;
+
+    /** HTTP server executor. */
+    private final ExecutorService executor;
+
+    /** Maximum synthetic object size in bytes. */
+    static final long MAX_SIZE = 64L * 1024L * 1024L;
+
+    /** Last modified date of the first object in a synthetic bucket. */
+    static final Instant LAST_MODIFIED = Instant.parse("2025-01-01T00:00:00Z");
+
+    /** s3 XML namespace. */
+    static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+
+    /**
+     * Create and start a new fake s3 server on an ephemeral port.
+     *
+     * @param pageSize maximum number of keys per ListObjectsV2 response, must be greater than zero
+     * @param latency latency added to each request, in milliseconds, must be at least zero
+     * @param throttleEvery respond with 503 SlowDown to every <code>throttleEvery</code>-th request,
+     *    or zero to never throttle, must be at least zero
+     * @throws IOException if an I/O error occurs
+     */
+    FakeS3Server(final int pageSize, final long latency, final int throttleEvery) throws IOException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be greater than zero");
+        }
+        if (latency < 0L) {
+            throw new IllegalArgumentException("latency must be at least zero");
+        }
+        if (throttleEvery < 0) {
+            throw new IllegalArgumentException("throttleEvery must be at least zero");
+        }
+        this.pageSize = pageSize;
+        this.latency = latency;
+        this.throttleEvery = throttleEvery;
+
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    /**
+     * Add a synthetic bucket with the specified number of objects.
+     *
+     * @param bucket bucket name, must not be null
+     * @param objectCount number of objects, must be at least zero
+     */
+    void addBucket(final String bucket, final long objectCount) {
+        if (bucket == null) {
+            throw new NullPointerException("bucket must not be null");
+        }
+        if (objectCount < 0L) {
+            throw new IllegalArgumentException("objectCount must be at least zero");
+        }
+        buckets.put(bucket, objectCount);
+    }
+
+    /**
+     * Return the endpoint URL for this fake s3 server.
+     *
+     * @return the endpoint URL for this fake s3 server
+     */
+    URI getEndpoint() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    /**
+     * Return the number of requests received by this fake s3 server, including throttled requests.
+     *
+     * @return the number of requests received by this fake s3 server
+     */
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Return the number of requests throttled by this fake s3 server.
+     *
+     * @return the number of requests throttled by this fake s3 server
+     */
+    long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Reset the request and throttled request counts to zero.
+     */
+    void resetCounts() {
+        requestCount.set(0L);
+        throttledCount.set(0L);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Return the key of the object at the specified index in a synthetic bucket.
+     *
+     * @param index index
+     * @return the key of the object at the specified index in a synthetic bucket
+     */
+    static String key(final long index) {
+        return String.format("objects/%07d/%012d", index / 1000L, index);
+    }
+
+    /**
+     * Return the size of the object at the specified index in a synthetic bucket.
+     *
+     * @param index index
+     * @return the size of the object at the specified index in a synthetic bucket
+     */
+    static long size(final long index) {
+        long x = (index + 1L) * 0x9E3779B97F4A7C15L;
+        x ^= (x >>> 31);
+        return (x & Long.MAX_VALUE) % MAX_SIZE;
+    }
+
+    /**
+     * Return the content byte at the specified offset of the object at the specified index in a synthetic bucket.
+     *
+     * @param index index
+     * @param offset offset
+     * @return the content byte at the specified offset of the object at the specified index in a synthetic bucket
+     */
+    static byte content(final long index, final long offset) {
+        return (byte) ((index * 31L + offset) & 0xff);
+    }
+
+    /**
+     * Return the index of the object with the specified key in a synthetic bucket of the specified size, or -1 if not found.
+     *
+     * @param key key
+     * @param objectCount number of objects in the synthetic bucket
+     * @return the index of the object with the specified key, or -1 if not found
+     */
+    static long indexOf(final String key, final long objectCount) {
+        long index = lowerBound(key, objectCount);
+        return (index < objectCount && key(index).equals(key)) ? index : -1L;
+    }
+
+    /**
+     * Return the index of the first key in a synthetic bucket of the specified size
+     * that is not less than the specified value.
+     *
+     * @param value value
+     * @param objectCount number of objects in the synthetic bucket
+     * @return the index of the first key not less than the specified value
+     */
+    static long lowerBound(final String value, final long objectCount) {
+        long low = 0L;
+        long high = objectCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (key(mid).compareTo(value) < 0) {
+                low = mid + 1L;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            long request = requestCount.incrementAndGet();
+
+            if (latency > 0L) {
+                Thread.sleep(latency);
+            }
+            if (throttleEvery > 0 && request % throttleEvery == 0L) {
+                throttledCount.incrementAndGet();
+                error(exchange, 503, "SlowDown", "Please reduce your request rate.");
+                return;
+            }
+
+            // path-style access, /bucket or /bucket/key
+            String path = exchange.getRequestURI().getRawPath();
+            int slash = path.indexOf('/', 1);
+            String bucket = decode(slash < 0 ? path.substring(1) : path.substring(1, slash));
+            String key = (slash < 0) ? "" : decode(path.substring(slash + 1));
+
+            Long objectCount = buckets.get(bucket);
+            if (objectCount == null) {
+                error(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+
+            if ("GET".equals(method) && key.isEmpty() && "2".equals(parameters.get("list-type"))) {
+                listObjectsV2(exchange, bucket, objectCount, parameters);
+            }
+            else if (("GET".equals(method) || "HEAD".equals(method)) && !key.isEmpty()) {
+                getObject(exchange, key, objectCount, "HEAD".equals(method));
+            }
+            else {
+                error(exchange, 501, "NotImplemented", "A header or query you provided implies functionality that is not implemented");
+            }
+        }
+        catch (NumberFormatException e) {
+            error(exchange, 400, "InvalidArgument", "Invalid argument " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void listObjectsV2(final HttpExchange exchange,
+                               final String bucket,
+                               final long objectCount,
+                               final Map<String, String> parameters) throws IOException {
+
+        String prefix = parameters.getOrDefault("prefix", "");
+        String continuationToken = parameters.get("continuation-token");
+        String startAfter = parameters.get("start-after");
+        boolean urlEncoding = "url".equals(parameters.get("encoding-type"));
+        int maxKeys = Math.min(pageSize, parameters.containsKey("max-keys") ? Integer.parseInt(parameters.get("max-keys")) : 1000);
+        if (maxKeys < 0) {
+            error(exchange, 400, "InvalidArgument", "max-keys must be at least zero");
+            return;
+        }
+
+        long start = lowerBound(prefix, objectCount);
+        if (continuationToken != null) {
+            start = Math.max(start, Long.parseLong(continuationToken));
+        }
+        else if (startAfter != null) {
+            long after = lowerBound(startAfter, objectCount);
+            if (after < objectCount && key(after).equals(startAfter)) {
+                after++;
+            }
+            start = Math.max(start, after);
+        }
+
+        StringBuilder sb = new StringBuilder(256 + maxKeys * 320);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<ListBucketResult xmlns=\"").append(NAMESPACE).append("\">");
+        element(sb, "Name", bucket);
+        element(sb, "Prefix", encode(prefix, urlEncoding));
+        element(sb, "MaxKeys", String.valueOf(maxKeys));
+        if (urlEncoding) {
+            element(sb, "EncodingType", "url");
+        }
+        if (continuationToken != null) {
+            element(sb, "ContinuationToken", continuationToken);
+        }
+        if (startAfter != null) {
+            element(sb, "StartAfter", encode(startAfter, urlEncoding));
+        }
+
+        int keyCount = 0;
+        long index = start;
+        for (; index < objectCount && keyCount < maxKeys; index++) {
+            String key = key(index);
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            sb.append("<Contents>");
+            element(sb, "Key", encode(key, urlEncoding));
+            element(sb, "LastModified", LAST_MODIFIED.plusSeconds(index).toString());
+            element(sb, "ETag", String.format("\"%032x\"", index));
+            element(sb, "ChecksumAlgorithm", "CRC64NVME");
+            element(sb, "ChecksumType", "FULL_OBJECT");
+            element(sb, "Size", String.valueOf(size(index)));
+            element(sb, "StorageClass", "STANDARD");
+            sb.append("</Contents>");
+            keyCount++;
+        }
+        boolean truncated = index < objectCount && key(index).startsWith(prefix);
+
+        element(sb, "KeyCount", String.valueOf(keyCount));
+        element(sb, "IsTruncated", String.valueOf(truncated));
+        if (truncated) {
+            element(sb, "NextContinuationToken", String.valueOf(index));
+        }
+        sb.append("</ListBucketResult>");
+
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void getObject(final HttpExchange exchange,
+                           final String key,
+                           final long objectCount,
+                           final boolean head) throws IOException {
+
+        long index = indexOf(key, objectCount);
+        if (index < 0L) {
+            error(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            return;
+        }
+        long size = size(index);
+        long first = 0L;
+        long last = size - 1L;
+        int status = 200;
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            try {
+                if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+                    throw new NumberFormatException(range);
+                }
+                String spec = range.substring(6).trim();
+                int dash = spec.indexOf('-');
+                if (dash == 0) {
+                    first = Math.max(0L, size - Long.parseLong(spec.substring(1)));
+                }
+                else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    if (dash < spec.length() - 1) {
+                        last = Math.min(last, Long.parseLong(spec.substring(dash + 1)));
+                    }
+                }
+            }
+            catch (IndexOutOfBoundsException | NumberFormatException e) {
+                error(exchange, 400, "InvalidArgument", "Invalid range " + range);
+                return;
+            }
+            if (first >= size || first > last) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+                error(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + first + "-" + last + "/" + size);
+            status = 206;
+        }
+        long length = last - first + 1L;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("ETag", String.format("\"%032x\"", index));
+        exchange.getResponseHeaders().set("Last-Modified", RFC_1123_DATE_TIME.format(LAST_MODIFIED.plusSeconds(index).atOffset(ZoneOffset.UTC)));
+
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0L ? -1 : length);
+        if (length > 0L) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] buffer = new byte[64 * 1024];
+                long offset = first;
+                while (offset <= last) {
+                    int n = (int) Math.min(buffer.length, last - offset + 1L);
+                    for (int i = 0; i < n; i++) {
+                        buffer[i] = content(index, offset + i);
+                    }
+                    out.write(buffer, 0, n);
+                    offset += n;
+                }
+            }
+        }
+    }
+
+    private static void error(final HttpExchange exchange, final int status, final String code, final String message) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<Error>");
+        element(sb, "Code", code);
+        element(sb, "Message", message);
+        sb.append("</Error>");
+
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void element(final StringBuilder sb, final String name, final String value) {
+        sb.append('<').append(name).append('>');
+        for (int i = 0, size = value.length(); i < size; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+        sb.append("</").append(name).append('>');
+    }
+
+    private static String encode(final String value, final boolean urlEncoding) {
+        return urlEncoding ? URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20").replace("%2F", "/") : value;
+    }
+
+    private static String decode(final String value) {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parameters(final String query) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query != null && !query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals < 0) {
+                    parameters.put(decode(parameter), "");
+                }
+                else {
+                    parameters.put(decode(parameter.substring(0, equals)), decode(parameter.substring(equals + 1)));
+                }
+            }
+        }
+        return parameters;
+    }
+}
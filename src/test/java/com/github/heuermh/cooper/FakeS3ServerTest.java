@@ -0,0 +1,132 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for FakeS3Server.
+ *
+ * @author  Michael Heuer
+ */
+public final class FakeS3ServerTest {
+    private FakeS3Server server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeS3Server(100, 0L, 0);
+        server.addBucket("bucket", 2500L);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorPageSizeLessThanOne() throws Exception {
+        new FakeS3Server(0, 0L, 0);
+    }
+
+    @Test
+    public void testKeysSorted() {
+        for (long i = 1L; i < 2500L; i++) {
+            assertTrue(FakeS3Server.key(i - 1L).compareTo(FakeS3Server.key(i)) < 0);
+        }
+        assertEquals(1000L, FakeS3Server.lowerBound("objects/0000001/", 2500L));
+        assertEquals(42L, FakeS3Server.indexOf(FakeS3Server.key(42L), 2500L));
+        assertEquals(-1L, FakeS3Server.indexOf("missing", 2500L));
+    }
+
+    @Test
+    public void testListObjectsV2() throws Exception {
+        HttpURLConnection connection = open("/bucket?list-type=2&prefix=objects%2F0000002%2F");
+        assertEquals(200, connection.getResponseCode());
+        String body = read(connection);
+        assertTrue(body.contains("<Key>" + FakeS3Server.key(2000L) + "</Key>"));
+        assertTrue(body.contains("<KeyCount>100</KeyCount>"));
+        assertTrue(body.contains("<NextContinuationToken>2100</NextContinuationToken>"));
+
+        connection = open("/bucket?list-type=2&prefix=objects%2F0000002%2F&continuation-token=2400");
+        body = read(connection);
+        assertTrue(body.contains("<IsTruncated>false</IsTruncated>"));
+        assertTrue(body.contains("<Key>" + FakeS3Server.key(2499L) + "</Key>"));
+    }
+
+    @Test
+    public void testInvalidArgument() throws Exception {
+        assertEquals(400, open("/bucket?list-type=2&max-keys=many").getResponseCode());
+        assertEquals(400, open("/bucket?list-type=2&max-keys=-1").getResponseCode());
+        assertEquals(400, open("/bucket?list-type=2&continuation-token=invalid").getResponseCode());
+    }
+
+    @Test
+    public void testNoSuchBucket() throws Exception {
+        assertEquals(404, open("/missing?list-type=2").getResponseCode());
+    }
+
+    @Test
+    public void testRangedGet() throws Exception {
+        long index = 42L;
+        HttpURLConnection connection = open("/bucket/" + FakeS3Server.key(index));
+        connection.setRequestProperty("Range", "bytes=10-19");
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("bytes 10-19/" + FakeS3Server.size(index), connection.getHeaderField("Content-Range"));
+
+        try (InputStream in = connection.getInputStream()) {
+            byte[] bytes = in.readAllBytes();
+            assertEquals(10, bytes.length);
+            for (int i = 0; i < bytes.length; i++) {
+                assertEquals(FakeS3Server.content(index, 10L + i), bytes[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testThrottle() throws Exception {
+        try (FakeS3Server throttled = new FakeS3Server(100, 0L, 2)) {
+            throttled.addBucket("bucket", 10L);
+            URI uri = throttled.getEndpoint().resolve("/bucket?list-type=2");
+            assertEquals(200, ((HttpURLConnection) uri.toURL().openConnection()).getResponseCode());
+            assertEquals(503, ((HttpURLConnection) uri.toURL().openConnection()).getResponseCode());
+            assertEquals(2L, throttled.getRequestCount());
+            assertEquals(1L, throttled.getThrottledCount());
+        }
+    }
+
+    private HttpURLConnection open(final String path) throws IOException {
+        return (HttpURLConnection) server.getEndpoint().resolve(path).toURL().openConnection();
+    }
+
+    private static String read(final HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import java.io.PrintStream;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.Callable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import com.google.common.base.Joiner;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * End-to-end load benchmark for the ls command against an in-process fake s3 endpoint.
+ * Peak heap is the peak heap usage after garbage collection during each run.
+ *
+ * <pre>
+ * $ mvn test-compile exec:exec \
+ *     -Dexec.args="-Xmx2g -classpath %classpath com.github.heuermh.cooper.LsBenchmark --objects 10000000 --latency 20"
+ * </pre>
+ *
+ * @author  Michael Heuer
+ */
+@Command(name = "ls-benchmark", mixinStandardHelpOptions = true, sortOptions = false)
+public final class LsBenchmark implements Callable<Integer> {
+
+    @Option(names = { "--objects" }, defaultValue = "1000000", description = "Number of objects in the synthetic bucket, default ${DEFAULT-VALUE}.")
+    private long objects;
+
+    @Option(names = { "--page-size" }, defaultValue = "1000", description = "Maximum number of keys per ListObjectsV2 response, default ${DEFAULT-VALUE}.")
+    private int pageSize;
+
+    @Option(names = { "--latency" }, defaultValue = "0", description = "Latency added to each request in milliseconds, default ${DEFAULT-VALUE}.")
+    private long latency;
+
+    @Option(names = { "--throttle-every" }, defaultValue = "0", description = "Respond with 503 SlowDown to every Nth request, default ${DEFAULT-VALUE} (never).")
+    private int throttleEvery;
+
+    @Option(names = { "--iterations" }, defaultValue = "1", description = "Number of iterations per mode, default ${DEFAULT-VALUE}.")
+    private int iterations;
+
+    @Option(names = { "--modes" }, split = ",", defaultValue = "ls,summarize,checksums,compressed", description = "Modes to run, default ${DEFAULT-VALUE}.")
+    private List<String> modes;
+
+    @Option(names = { "--temp-directory" }, description = "Temporary directory for ls output. Default system temporary directory.")
+    private Path tempDirectory;
+
+    /** Bucket name. */
+    static final String BUCKET = "benchmark";
+
+    /** Human readable formatter. */
+    static final HumanReadableFormatter FORMATTER = new HumanReadableFormatter();
+
+
+    @Override
+    public Integer call() throws Exception {
+        PrintStream out = System.out;
+        Joiner joiner = Joiner.on("\t");
+        out.println("mode\titeration\tobjects\trequests\tthrottled\tseconds\tobjects_per_second\trequests_per_second\tgc_count\tpeak_heap_after_gc_bytes\tpeak_heap_after_gc");
+
+        Path directory = tempDirectory == null ? Files.createTempDirectory("coop-benchmark") : Files.createTempDirectory(tempDirectory, "coop-benchmark");
+        try (FakeS3Server server = new FakeS3Server(pageSize, latency, throttleEvery)) {
+            server.addBucket(BUCKET, objects);
+
+            for (String mode : modes) {
+                for (int iteration = 0; iteration < iterations; iteration++) {
+                    Path outputPath = directory.resolve("compressed".equals(mode) ? "ls.txt.gz" : "ls.txt");
+                    List<String> args = args(mode, server, outputPath);
+
+                    server.resetCounts();
+                    int exitCode;
+                    double seconds;
+                    long collections;
+                    long peakHeap;
+                    try (HeapMonitor heapMonitor = new HeapMonitor()) {
+                        long start = System.nanoTime();
+
+                        exitCode = new CommandLine(new Ls()).execute(args.toArray(new String[0]));
+
+                        seconds = (System.nanoTime() - start) / 1.0e9;
+                        collections = heapMonitor.getCollections();
+                        peakHeap = heapMonitor.getPeak();
+                    }
+                    Files.deleteIfExists(outputPath);
+
+                    if (exitCode != 0) {
+                        System.err.println("ls failed in mode " + mode + " with exit code " + exitCode);
+                        return exitCode;
+                    }
+                    out.println(joiner.join(mode,
+                                            iteration,
+                                            objects,
+                                            server.getRequestCount(),
+                                            server.getThrottledCount(),
+                                            String.format("%.3f", seconds),
+                                            String.format("%.1f", objects / seconds),
+                                            String.format("%.1f", server.getRequestCount() / seconds),
+                                            collections,
+                                            peakHeap,
+                                            FORMATTER.format(peakHeap)));
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(directory);
+        }
+        return 0;
+    }
+
+    /**
+     * Return ls command line arguments for the specified mode.
+     *
+     * @param mode mode, one of ls, summarize, checksums, or compressed
+     * @param server fake s3 server
+     * @param outputPath output path
+     * @return ls command line arguments for the specified mode
+     */
+    static List<String> args(final String mode, final FakeS3Server server, final Path outputPath) {
+        List<String> args = new ArrayList<String>(Arrays.asList("--anonymous",
+                                                                "--region", "us-east-1",
+                                                                "--endpoint-url", server.getEndpoint().toString(),
+                                                                "--force-path-style",
+                                                                "-o", outputPath.toString()));
+        if ("summarize".equals(mode)) {
+            args.add("--summarize");
+        }
+        else if ("checksums".equals(mode)) {
+            args.add("--checksums");
+        }
+        else if (!"ls".equals(mode) && !"compressed".equals(mode)) {
+            throw new IllegalArgumentException("mode must be one of ls, summarize, checksums, or compressed, was " + mode);
+        }
+        args.add("s3://" + BUCKET + "/");
+        return args;
+    }
+
+    /**
+     * Heap monitor, which tracks peak heap usage after garbage collection, a
+     * measure of the live heap, from garbage collection notifications.
+     */
+    static final class HeapMonitor implements NotificationListener, AutoCloseable {
+        /** Names of heap memory pools. */
+        private final Set<String> heapPools = new HashSet<String>();
+
+        /** Peak heap usage after garbage collection, in bytes. */
+        private final AtomicLong peak = new AtomicLong();
+
+        /** Number of garbage collection notifications received since start. */
+        private final AtomicLong notifications = new AtomicLong();
+
+        /** Last garbage collection id at start, keyed by garbage collector name. */
+        private volatile Map<String, Long> startIds;
+
+
+        /**
+         * Run the garbage collector and start listening for garbage collection notifications.
+         */
+        HeapMonitor() {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapPools.add(pool.getName());
+                }
+            }
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+            }
+            // notifications for collections up to and including these ids, e.g. from System.gc() above, are ignored
+            startIds = lastIds();
+        }
+
+
+        @Override
+        public void handleNotification(final Notification notification, final Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                Map<String, Long> ids = startIds;
+                if (ids == null || info.getGcInfo().getId() <= ids.getOrDefault(info.getGcName(), 0L)) {
+                    return;
+                }
+                long used = 0L;
+                for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                    if (heapPools.contains(entry.getKey())) {
+                        used += entry.getValue().getUsed();
+                    }
+                }
+                peak.accumulateAndGet(used, Math::max);
+                notifications.incrementAndGet();
+            }
+        }
+
+        /**
+         * Return the number of garbage collections since this heap monitor started.
+         *
+         * @return the number of garbage collections since this heap monitor started
+         */
+        long getCollections() {
+            long collections = 0L;
+            for (Map.Entry<String, Long> entry : lastIds().entrySet()) {
+                collections += entry.getValue() - startIds.getOrDefault(entry.getKey(), 0L);
+            }
+            return collections;
+        }
+
+        /**
+         * Return the peak heap usage after garbage collection since this heap monitor started, in bytes.
+         * If no garbage collection occurred, run the garbage collector and return the heap usage after it.
+         *
+         * @return the peak heap usage after garbage collection since this heap monitor started, in bytes
+         * @throws InterruptedException if interrupted while waiting for pending notifications
+         */
+        long getPeak() throws InterruptedException {
+            long collections = getCollections();
+            if (collections == 0L) {
+                System.gc();
+                collections = getCollections();
+            }
+            // notifications are delivered asynchronously, wait up to one second for pending notifications
+            for (int i = 0; i < 100 && notifications.get() < collections; i++) {
+                Thread.sleep(10L);
+            }
+            return peak.get();
+        }
+
+        @Override
+        public void close() throws ListenerNotFoundException {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).removeNotificationListener(this);
+            }
+        }
+
+        private static Map<String, Long> lastIds() {
+            Map<String, Long> ids = new HashMap<String, Long>();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                GcInfo gcInfo = ((com.sun.management.GarbageCollectorMXBean) gc).getLastGcInfo();
+                ids.put(gc.getName(), gcInfo == null ? 0L : gcInfo.getId());
+            }
+            return ids;
+        }
+    }
+
+
+    /**
+     * Main.
+     *
+     * @param args command line args
+     */
+    public static void main(final String[] args) {
+        System.exit(new CommandLine(new LsBenchmark()).execute(args));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for Ls.
+ *
+ * @author  Michael Heuer
+ */
+public final class LsTest {
+    private FakeS3Server server;
+    private Path outputPath;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeS3Server(100, 0L, 0);
+        server.addBucket("bucket", 2500L);
+        outputPath = temporaryFolder.newFile("ls.txt").toPath();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testLs() throws Exception {
+        assertEquals(0, ls(server, "s3://bucket/"));
+
+        List<String> lines = Files.readAllLines(outputPath);
+        assertEquals(2500, lines.size());
+        assertEquals("s3://bucket/" + FakeS3Server.key(0L) + "\t" + FakeS3Server.size(0L), lines.get(0));
+        assertEquals(25L, server.getRequestCount());
+    }
+
+    @Test
+    public void testLsThrottled() throws Exception {
+        try (FakeS3Server throttled = new FakeS3Server(1000, 0L, 2)) {
+            throttled.addBucket("bucket", 2500L);
+            assertEquals(0, ls(throttled, "--summarize", "s3://bucket/"));
+
+            List<String> lines = Files.readAllLines(outputPath);
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).startsWith("s3://bucket/\t2500\t"));
+            assertTrue(throttled.getThrottledCount() > 0L);
+        }
+    }
+
+    @Test
+    public void testSortSizeReverse() throws Exception {
+        assertEquals(0, ls(server, "--sort", "size", "--reverse", "s3://bucket/"));
+
+        List<String> lines = Files.readAllLines(outputPath);
+        assertEquals(2500, lines.size());
+        assertEquals(expectedSizes(2500), sizes(lines));
+    }
+
+    @Test
+    public void testSortKeyReverseSpill() throws Exception {
+        // enough objects to spill at least one run of ExternalSorter.MIN_RUN_SIZE listings
+        long objectCount = ExternalSorter.MIN_RUN_SIZE * 2L + 100L;
+        try (FakeS3Server large = new FakeS3Server(1000, 0L, 0)) {
+            large.addBucket("bucket", objectCount);
+            Path tempDirectory = temporaryFolder.newFolder().toPath();
+            assertEquals(0, ls(large, "--sort", "key", "--reverse", "--sort-buffer-size", "1024", "--temp-directory", tempDirectory.toString(), "s3://bucket/"));
+
+            List<String> lines = Files.readAllLines(outputPath);
+            assertEquals(objectCount, lines.size());
+            assertEquals("s3://bucket/" + FakeS3Server.key(objectCount - 1L) + "\t" + FakeS3Server.size(objectCount - 1L), lines.get(0));
+            assertEquals("s3://bucket/" + FakeS3Server.key(0L) + "\t" + FakeS3Server.size(0L), lines.get(lines.size() - 1));
+
+            // spill files are removed
+            try (Stream<Path> files = Files.list(tempDirectory)) {
+                assertFalse(files.findAny().isPresent());
+            }
+        }
+    }
+
+    @Test
+    public void testTopReverse() throws Exception {
+        assertEquals(0, ls(server, "--sort", "size", "--reverse", "--top", "10", "s3://bucket/"));
+
+        List<String> lines = Files.readAllLines(outputPath);
+        assertEquals(10, lines.size());
+        assertEquals(expectedSizes(10), sizes(lines));
+    }
+
+    @Test
+    public void testTopLessThanOne() throws Exception {
+        assertEquals(2, ls(server, "--sort", "size", "--top", "0", "s3://bucket/"));
+        assertEquals(0L, server.getRequestCount());
+    }
+
+    @Test
+    public void testTopWithoutSort() throws Exception {
+        assertEquals(2, ls(server, "--top", "10", "s3://bucket/"));
+        assertEquals(0L, server.getRequestCount());
+    }
+
+    @Test
+    public void testSortBufferSizeLessThanOne() throws Exception {
+        assertEquals(2, ls(server, "--sort", "size", "--sort-buffer-size", "0", "s3://bucket/"));
+        assertEquals(0L, server.getRequestCount());
+    }
+
+    private int ls(final FakeS3Server server, final String... rest) {
+        List<String> args = new ArrayList<String>();
+        Collections.addAll(args, "--anonymous", "--region", "us-east-1", "--endpoint-url", server.getEndpoint().toString(), "--force-path-style", "-o", outputPath.toString());
+        Collections.addAll(args, rest);
+        return new CommandLine(new Ls()).execute(args.toArray(new String[0]));
+    }
+
+    private static List<Long> sizes(final List<String> lines) {
+        List<Long> sizes = new ArrayList<Long>(lines.size());
+        for (String line : lines) {
+            sizes.add(Long.valueOf(line.substring(line.indexOf('\t') + 1)));
+        }
+        return sizes;
+    }
+
+    private static List<Long> expectedSizes(final int n) {
+        List<Long> sizes = new ArrayList<Long>(2500);
+        for (long i = 0L; i < 2500L; i++) {
+            sizes.add(FakeS3Server.size(i));
+        }
+        sizes.sort(Collections.reverseOrder());
+        return sizes.subList(0, n);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The authors of this file license it to you under the
+ * Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You
+ * may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.heuermh.cooper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for TopSorter.
+ *
+ * @author  Michael Heuer
+ */
+public final class TopSorterTest {
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullComparator() {
+        new TopSorter(null, 10);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorNLessThanOne() {
+        new TopSorter(SortKey.SIZE.comparator(false), 0);
+    }
+
+    @Test
+    public void testFewerThanN() {
+        TopSorter sorter = new TopSorter(SortKey.KEY.comparator(false), 10);
+        sorter.add(new Listing("s3://bucket/b", 1L, 0L, null, null, null));
+        sorter.add(new Listing("s3://bucket/a", 2L, 0L, null, null, null));
+
+        List<Listing> sorted = new ArrayList<Listing>();
+        sorter.forEach(sorted::add);
+        assertEquals(2, sorted.size());
+        assertEquals("s3://bucket/a", sorted.get(0).getS3Path());
+        assertEquals("s3://bucket/b", sorted.get(1).getS3Path());
+    }
+
+    @Test
+    public void testTop() {
+        Comparator<Listing> comparator = SortKey.SIZE.comparator(true);
+        TopSorter sorter = new TopSorter(comparator, 100);
+
+        Random random = new Random(42L);
+        List<Listing> expected = new ArrayList<Listing>();
+        for (int i = 0; i < 10000; i++) {
+            Listing listing = new Listing("s3://bucket/key" + i, random.nextInt(1000000), 0L, null, null, null);
+            expected.add(listing);
+            sorter.add(listing);
+        }
+        expected.sort(comparator);
+
+        List<Listing> sorted = new ArrayList<Listing>();
+        sorter.forEach(sorted::add);
+        assertEquals(100, sorted.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.get(i).getS3Path(), sorted.get(i).getS3Path());
+        }
+    }
+}